@@ -6,9 +6,27 @@ import org.apache.logging.log4j.Logger;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Runs different commands related to synchronization of database
@@ -20,6 +38,7 @@ public class Runner {
     private static final String STOP_SYNC_LOG_COMMAND = "stop-sync-log";
     private static final String DELETE_SYNC_LOG_COMMAND = "delete-sync-log";
     private static final String SYNC_PROCESS = "sync-process";
+    private static final String DRAIN_COMMAND = "drain";
 
     private static final String SOURCE_DB_HOST = "source.db.host";
     private static final String SOURCE_DB_NAME = "source.db.name";
@@ -32,10 +51,24 @@ public class Runner {
     private static final String SYNC_TABLES = "sync.tables";
     private static final String BATCH_SIZE = "batch.size";
     private static final String TASK_INTERVAL = "task.interval";
+    private static final String INSTANCE_ID = "instance.id";
+    private static final String LEASE_ENABLED = "lease.enabled";
+    private static final String LEASE_DURATION = "lease.duration";
+    private static final String LEASE_PARTITIONS = "lease.partitions";
+    private static final String THREAD_POOL_SIZE = "thread.pool.size";
 
     private static final String COLUMN_NAME = "COLUMN_NAME";
     private static final String COLUMN_TYPE = "COLUMN_TYPE";
 
+    private static final String SYNC_LEASE_TABLE = "SYNC_LEASE";
+    private static final String SYNC_INSTANCE_TABLE = "SYNC_INSTANCE";
+    private static final int SETUP_LOCK_TIMEOUT = 60;
+    private static final Object LEASE_LOCK = new Object();
+    private static final int DRAIN_REPORT_INTERVAL = 5000;
+    private static final int DRAIN_RETRY_INTERVAL = 100;
+    private static final int DRAIN_MAX_FAILURES = 10;
+    private static final int DRAIN_MAX_DEFERRALS = 3000;
+
     private static String sourceDatabaseHost;
     private static String sourceDatabaseName;
     private static String sourceDatabaseUser;
@@ -47,6 +80,13 @@ public class Runner {
     private static String batchSize;
     private static int taskInterval;
     private static String[] syncTables;
+    private static String instanceId = ManagementFactory.getRuntimeMXBean().getName();
+    private static boolean leaseEnabled;
+    private static int leaseDuration = 30000;
+    private static ConcurrentHashMap<String, Integer> leasePartitions = new ConcurrentHashMap<>();
+    private static int threadPoolSize = 8;
+    private static ConcurrentHashMap<String, TableMetadata> sourceCatalog;
+    private static volatile boolean shuttingDown;
 
     private static Logger log = LogManager.getLogger(Runner.class);
 
@@ -57,6 +97,7 @@ public class Runner {
      * stop-sync-log : Drop the triggers
      * delete-sync-log : Drop the sync log tables
      * sync-process : Extract data from source DB and insert/update in the target DB.
+     * drain : Synchronize all tables up to the source high-water mark while writes are frozen, then exit.
      * <p>
      * Configs can be done using a properties file or flags passed as args.
      * Config list,
@@ -72,6 +113,11 @@ public class Runner {
      * sync.tables
      * batch.size
      * task.interval
+     * instance.id
+     * lease.enabled
+     * lease.duration
+     * lease.partitions
+     * thread.pool.size
      *
      * @param args command and configuration flags
      */
@@ -94,6 +140,10 @@ public class Runner {
             getConfigFromArgs(args);
         }
 
+        if (!validateConfig()) {
+            return;
+        }
+
         // configs are available at this point. Progressing to execute the command
         switch (args[0]) {
             case START_SYNC_LOG_COMMAND:
@@ -108,10 +158,13 @@ public class Runner {
             case SYNC_PROCESS:
                 startSyncProcess();
                 break;
+            case DRAIN_COMMAND:
+                System.exit(drain() ? 0 : 1);
+                break;
             default:
                 log.error("Command does not match any of the expected commands, expected commands are, "
                         + START_SYNC_LOG_COMMAND + ", " + STOP_SYNC_LOG_COMMAND + ", " + DELETE_SYNC_LOG_COMMAND + ", "
-                        + SYNC_PROCESS);
+                        + SYNC_PROCESS + ", " + DRAIN_COMMAND);
         }
     }
 
@@ -159,6 +212,21 @@ public class Runner {
                     case SYNC_TABLES:
                         syncTables = args[i + 1].split(",");
                         break;
+                    case INSTANCE_ID:
+                        instanceId = args[i + 1];
+                        break;
+                    case LEASE_ENABLED:
+                        leaseEnabled = Boolean.parseBoolean(args[i + 1]);
+                        break;
+                    case LEASE_DURATION:
+                        parseLeaseDuration(args[i + 1]);
+                        break;
+                    case LEASE_PARTITIONS:
+                        parseLeasePartitions(args[i + 1]);
+                        break;
+                    case THREAD_POOL_SIZE:
+                        parseThreadPoolSize(args[i + 1]);
+                        break;
                     default:
                         log.error("Config " + args[i] + " does not match any of the expected configs.");
                 }
@@ -227,6 +295,21 @@ public class Runner {
                         case SYNC_TABLES:
                             syncTables = value.split(",");
                             break;
+                        case INSTANCE_ID:
+                            instanceId = value;
+                            break;
+                        case LEASE_ENABLED:
+                            leaseEnabled = Boolean.parseBoolean(value);
+                            break;
+                        case LEASE_DURATION:
+                            parseLeaseDuration(value);
+                            break;
+                        case LEASE_PARTITIONS:
+                            parseLeasePartitions(value);
+                            break;
+                        case THREAD_POOL_SIZE:
+                            parseThreadPoolSize(value);
+                            break;
                         default:
                             log.error("Config " + config + " does not match any of the expected configs.");
                     }
@@ -240,354 +323,1513 @@ public class Runner {
         return true;
     }
 
-    private static void startSyncLog() {
-        Statement statement = null;
-        ResultSet resultSet = null;
-        PreparedStatement preparedStatement = null;
-        String query;
-
-        try (Connection dbConnection = getSourceDBConnection()) {
+    private static void parseThreadPoolSize(String value) {
 
-            if (null == dbConnection) {
-                log.error("Could not make the database connection");
+        try {
+            int size = Integer.parseInt(value);
+            if (size < 1) {
+                log.error("Thread pool size should be a positive integer, Erroneous config : " + value);
                 return;
             }
+            threadPoolSize = size;
+        } catch (NumberFormatException nfe) {
+            log.error("Thread pool size should be an integer number, Erroneous config : " + value);
+        }
+    }
 
-            for (String table : syncTables) {
-
-                String sourceTable = sourceDatabaseName + "." + table;
+    private static void parseLeaseDuration(String value) {
 
-                statement = dbConnection.createStatement();
-                query = "SELECT COLUMN_NAME,COLUMN_TYPE FROM information_schema.COLUMNS WHERE "
-                        + "COLUMN_KEY ='PRI' AND TABLE_SCHEMA = '" + sourceDatabaseName
-                        + "' AND TABLE_NAME = '" + table + "' LIMIT 1";
-                resultSet = statement.executeQuery(query);
-                resultSet.next();
-                log.info(String.format("Query: [%s] ", query));
+        try {
+            int duration = Integer.parseInt(value);
+            if (duration <= 0) {
+                log.error("Lease duration should be a positive integer, Erroneous config : " + value);
+                return;
+            }
+            leaseDuration = duration;
+        } catch (NumberFormatException nfe) {
+            log.error("Lease duration should be an integer number, Erroneous config : " + value);
+        }
+    }
 
-                String primeryCol = resultSet.getString(COLUMN_NAME);
-                String primeryColType = resultSet.getString(COLUMN_TYPE);
+    /**
+     * Leases are renewed between sync units, hence the task interval sleep has to fit well within the lease
+     * duration. Otherwise leases expire on every cycle and sync units keep moving between instances.
+     *
+     * @return true if the configs can be used together
+     */
+    private static boolean validateConfig() {
 
-                query = "DROP TABLE IF EXISTS " + sourceTable + "_SYNC;";
-                preparedStatement = dbConnection.prepareStatement(query);
-                preparedStatement.execute();
-                log.info(String.format("Query: [%s] ", query));
+        if (leaseEnabled && taskInterval >= leaseDuration / 3) {
+            log.error(String.format("Task interval [%s ms] should be less than one third of the lease duration " +
+                    "[%s ms]", taskInterval, leaseDuration));
+            return false;
+        }
+        return true;
+    }
 
-                query = "CREATE TABLE " + sourceTable + "_SYNC ( SYNC_ID INT NOT NULL AUTO_INCREMENT," +
-                        " " + primeryCol + " " + primeryColType + " NOT NULL, PRIMARY KEY (SYNC_ID)" +
-                        ") ENGINE=InnoDB DEFAULT CHARSET=latin1;";
-                preparedStatement = dbConnection.prepareStatement(query);
-                preparedStatement.execute();
-                log.info(String.format("Query: [%s] ", query));
+    /**
+     * Parses the partition counts of the tables which are split by primary key hash. Format is a comma separated list
+     * of TABLE:PARTITION_COUNT entries. Tables which are not listed are synchronized as a single partition.
+     *
+     * @param value lease.partitions config value
+     */
+    private static void parseLeasePartitions(String value) {
 
-                query = "DROP TRIGGER IF EXISTS " + table + "_SYNC_INSERT_TRIGGER;";
-                preparedStatement = dbConnection.prepareStatement(query);
-                preparedStatement.execute();
-                log.info(String.format("Query: [%s] ", query));
+        for (String entry : value.split(",")) {
 
-                query = "DROP TRIGGER IF EXISTS " + table + "_SYNC_UPDATE_TRIGGER;";
-                preparedStatement = dbConnection.prepareStatement(query);
-                preparedStatement.execute();
-                log.info(String.format("Query: [%s] ", query));
-
-                query = "CREATE TRIGGER " + table + "_SYNC_INSERT_TRIGGER BEFORE INSERT " +
-                        "ON " + sourceTable + " FOR EACH ROW BEGIN INSERT " +
-                        "INTO " +
-                        sourceTable + "_SYNC(" + primeryCol + ") " +
-                        "VALUES(NEW." + primeryCol + "); " +
-                        "END;";
-                preparedStatement = dbConnection.prepareStatement(query);
-                preparedStatement.execute();
-                log.info(String.format("Query: [%s] ", query));
-
-                query = "CREATE TRIGGER " + table + "_SYNC_UPDATE_TRIGGER BEFORE UPDATE " +
-                        "ON " + sourceTable + " FOR EACH ROW BEGIN INSERT " +
-                        "INTO " +
-                        sourceTable + "_SYNC(" + primeryCol + ") " +
-                        "VALUES(NEW." + primeryCol + "); " +
-                        "END;";
-                preparedStatement = dbConnection.prepareStatement(query);
-                preparedStatement.execute();
-                log.info(String.format("Query: [%s] ", query));
+            String[] tablePartitions = entry.trim().split(":");
+            if (2 != tablePartitions.length) {
+                log.error("Lease partition config [" + entry + "] does not follow TABLE:PARTITION_COUNT format");
+                continue;
             }
-        } catch (SQLException e) {
-
-            log.error("Error occurred while executing SQL", e);
-        } finally {
 
-            if (null != preparedStatement) {
-                try {
-                    preparedStatement.close();
-                } catch (SQLException ignored) {
-                }
-            }
-            if (null != resultSet) {
-                try {
-                    resultSet.close();
-                } catch (SQLException ignored) {
-                }
-            }
-            if (null != statement) {
-                try {
-                    statement.close();
-                } catch (SQLException ignored) {
+            try {
+                int partitionCount = Integer.parseInt(tablePartitions[1]);
+                if (partitionCount < 1) {
+                    log.error("Partition count should be a positive integer, Erroneous config : " + entry);
+                    continue;
                 }
+                leasePartitions.put(tablePartitions[0], partitionCount);
+            } catch (NumberFormatException nfe) {
+                log.error("Partition count should be an integer number, Erroneous config : " + entry);
             }
         }
     }
 
-    private static void startSyncProcess() {
+    private static int getPartitionCount(String table) {
 
-        Connection targetDBConnection = getTargetDBConnection();
-        Connection sourceDBConnection = getSourceDBConnection();
+        Integer partitionCount = leasePartitions.get(table);
+        return null == partitionCount ? 1 : partitionCount;
+    }
 
-        String query = null;
+    private static void startSyncLog() {
+
+        ConcurrentHashMap<String, TableMetadata> catalog;
+
+        try (Connection dbConnection = getSourceDBConnection()) {
+
+            if (null == dbConnection) {
+                log.error("Could not make the database connection");
+                return;
+            }
 
+            catalog = getSourceCatalog(dbConnection);
+        } catch (SQLException e) {
+
+            log.error("Error occurred while reading the source database catalog", e);
+            return;
+        }
+
+        ConcurrentLinkedQueue<String> pendingTables = new ConcurrentLinkedQueue<>();
         for (String table : syncTables) {
-            try {
-                String targetTable = targetDatabaseName + "." + table;
 
-                query = "CREATE TABLE IF NOT EXISTS " + targetTable + "_SYNC_VERSION (" +
-                        " SYNC_ID INT) ENGINE=InnoDB DEFAULT CHARSET=latin1;";
-                try (PreparedStatement preparedStatement = targetDBConnection.prepareStatement(query)) {
-                    preparedStatement.execute();
-                    log.info(String.format("Query: Create table for sync version at target database: [%s] ", query));
+            TableMetadata metadata = catalog.get(table);
+            if (null == metadata) {
+                log.error(String.format("Table [%s] does not exist in source database. Sync log is not created", table));
+                continue;
+            }
+            if (null == metadata.getPrimaryCol()) {
+                log.error(String.format("Table [%s] does not have a primary key. Sync log is not created", table));
+                continue;
+            }
 
-                }
-                query = "INSERT INTO " + targetTable + "_SYNC_VERSION (SYNC_ID) SELECT 0 FROM DUAL WHERE NOT EXISTS (SELECT * FROM "
-                        + targetTable + "_SYNC_VERSION);";
-                try (PreparedStatement preparedStatement = targetDBConnection.prepareStatement(query)) {
-                    preparedStatement.execute();
-                    log.info(String.format("Query: Insert 0 if table is empty: [%s] ", query));
-                }
-            } catch (SQLException e) {
-                log.error(String.format("Error occurred while executing SQL: Query : [%s] ", query), e);
+            if (isSyncLogCreated(metadata, catalog.get(table + "_SYNC"))) {
+                log.info(String.format("Sync log and triggers already exist, Table [%s]", table));
+            } else {
+                pendingTables.add(table);
             }
         }
 
+        if (pendingTables.isEmpty()) {
+            return;
+        }
+
+        int threadCount = Math.min(threadPoolSize, pendingTables.size());
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        ArrayList<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            workers.add(executorService.submit(() -> createSyncLogs(pendingTables, catalog)));
+        }
+        executorService.shutdown();
+
         try {
-            syncTables(syncTables, taskInterval, targetDBConnection, sourceDBConnection);
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (ExecutionException e) {
+                    log.error("Error occurred while creating sync logs", e.getCause());
+                }
+            }
         } catch (InterruptedException e) {
-            log.error("Error occurred while running sync task", e);
+            log.error("Interrupted while waiting for sync log creation", e);
+            Thread.currentThread().interrupt();
+        }
+
+        if (!pendingTables.isEmpty()) {
+            log.error(String.format("Sync log is not created for tables [%s]", String.join(", ", pendingTables)));
         }
+
+        // Sync log tables and triggers were changed, hence the cached catalog is outdated
+        sourceCatalog = null;
     }
 
+    private static boolean isSyncLogCreated(TableMetadata metadata, TableMetadata syncLogMetadata) {
 
-    @SuppressWarnings("InfiniteLoopStatement")
-    private static void syncTables(String[] tables, int taskInterval, Connection targetDBConnection,
-                                   Connection sourceDBConnection) throws InterruptedException {
+        if (null == syncLogMetadata) {
+            return false;
+        }
 
-        ConcurrentHashMap<String, String> primaryColMap = new ConcurrentHashMap<>();
-        ConcurrentHashMap<String, PreparedStatement> targetSyncVersionPsMap = new ConcurrentHashMap<>();
-        ConcurrentHashMap<String, PreparedStatement> dataInformationPsMap = new ConcurrentHashMap<>();
-        ConcurrentHashMap<String, PreparedStatement> dataExtractionPsMap = new ConcurrentHashMap<>();
-        ConcurrentHashMap<String, PreparedStatement> dataUpdatePsMap = new ConcurrentHashMap<>();
-        ConcurrentHashMap<String, PreparedStatement> targetVersionUpdatePsMap = new ConcurrentHashMap<>();
+        String primaryCol = metadata.getPrimaryCol();
+        return metadata.getColumnType(primaryCol).equals(syncLogMetadata.getColumnType(primaryCol))
+                && metadata.hasTrigger(metadata.getName() + "_SYNC_INSERT_TRIGGER")
+                && metadata.hasTrigger(metadata.getName() + "_SYNC_UPDATE_TRIGGER");
+    }
 
-        for (String table : tables) {
+    /**
+     * Creates the sync log of the tables taken from the queue, until the queue is empty. Each worker uses its own
+     * database connection.
+     */
+    private static void createSyncLogs(ConcurrentLinkedQueue<String> pendingTables,
+                                       ConcurrentHashMap<String, TableMetadata> catalog) {
 
-            String query = "SELECT COLUMN_NAME FROM " +
-                    "information_schema.COLUMNS WHERE COLUMN_KEY ='PRI' AND TABLE_SCHEMA = '"
-                    + sourceDatabaseName + "' AND TABLE_NAME = '" + table + "' LIMIT 1;";
-            try (ResultSet resultSet = targetDBConnection.prepareStatement(query).executeQuery()) {
+        try (Connection dbConnection = getSourceDBConnection()) {
 
-                resultSet.next();
-                primaryColMap.put(table, resultSet.getString(COLUMN_NAME));
+            if (null == dbConnection) {
+                log.error("Could not make the database connection");
+                return;
+            }
 
-            } catch (SQLException e) {
-                log.error("Error occurred while executing primary column query", e);
+            String table;
+            while (null != (table = pendingTables.poll())) {
+                try {
+                    createSyncLog(dbConnection, catalog.get(table));
+                } catch (SQLException e) {
+                    log.error(String.format("Error occurred while creating sync log, Table [%s]", table), e);
+                }
             }
+        } catch (SQLException e) {
 
-            try {
-                query = "SELECT SYNC_ID FROM " + targetDatabaseName + "." + table + "_SYNC_VERSION;";
-                targetSyncVersionPsMap.put(table, targetDBConnection.prepareStatement(query));
+            log.error("Error occurred while executing SQL", e);
+        }
+    }
 
-            } catch (SQLException e) {
-                log.error(String.format("Error occurred while creating target db version prepared statement, Table [%s]", table), e);
-            }
+    private static void createSyncLog(Connection dbConnection, TableMetadata metadata) throws SQLException {
+
+        String table = metadata.getName();
+        String sourceTable = sourceDatabaseName + "." + table;
+        String primeryCol = metadata.getPrimaryCol();
+        String primeryColType = metadata.getColumnType(primeryCol);
+        String query;
+
+        try (Statement statement = dbConnection.createStatement()) {
+
+            query = "DROP TABLE IF EXISTS " + sourceTable + "_SYNC;";
+            statement.execute(query);
+            log.info(String.format("Query: [%s] ", query));
+
+            query = "CREATE TABLE " + sourceTable + "_SYNC ( SYNC_ID INT NOT NULL AUTO_INCREMENT," +
+                    " " + primeryCol + " " + primeryColType + " NOT NULL, PRIMARY KEY (SYNC_ID)" +
+                    ") ENGINE=InnoDB DEFAULT CHARSET=latin1;";
+            statement.execute(query);
+            log.info(String.format("Query: [%s] ", query));
+
+            query = "DROP TRIGGER IF EXISTS " + table + "_SYNC_INSERT_TRIGGER;";
+            statement.execute(query);
+            log.info(String.format("Query: [%s] ", query));
+
+            query = "DROP TRIGGER IF EXISTS " + table + "_SYNC_UPDATE_TRIGGER;";
+            statement.execute(query);
+            log.info(String.format("Query: [%s] ", query));
+
+            query = "CREATE TRIGGER " + table + "_SYNC_INSERT_TRIGGER BEFORE INSERT " +
+                    "ON " + sourceTable + " FOR EACH ROW BEGIN INSERT " +
+                    "INTO " +
+                    sourceTable + "_SYNC(" + primeryCol + ") " +
+                    "VALUES(NEW." + primeryCol + "); " +
+                    "END;";
+            statement.execute(query);
+            log.info(String.format("Query: [%s] ", query));
+
+            query = "CREATE TRIGGER " + table + "_SYNC_UPDATE_TRIGGER BEFORE UPDATE " +
+                    "ON " + sourceTable + " FOR EACH ROW BEGIN INSERT " +
+                    "INTO " +
+                    sourceTable + "_SYNC(" + primeryCol + ") " +
+                    "VALUES(NEW." + primeryCol + "); " +
+                    "END;";
+            statement.execute(query);
+            log.info(String.format("Query: [%s] ", query));
         }
+    }
 
-        while (true) {
+    private static ConcurrentHashMap<String, TableMetadata> getSourceCatalog(Connection sourceDBConnection)
+            throws SQLException {
 
-            if (log.isDebugEnabled()) {
-                log.debug("Running sync task...");
+        if (null == sourceCatalog) {
+            ArrayList<String> tables = new ArrayList<>();
+            for (String table : syncTables) {
+                tables.add(table);
+                tables.add(table + "_SYNC");
             }
+            sourceCatalog = loadCatalog(sourceDBConnection, sourceDatabaseName, tables);
+        }
+        return sourceCatalog;
+    }
 
-            boolean activateWait = true;
-            for (String table : tables) {
+    /**
+     * Reads the columns, foreign keys and triggers of the given tables with a single pass over information_schema,
+     * instead of querying each table separately.
+     *
+     * @param dbConnection database connection
+     * @param schema       database name
+     * @param tables       names of the tables to be read. Tables which do not exist are not added to the catalog
+     * @return table metadata by table name
+     * @throws SQLException if reading information_schema fails
+     */
+    private static ConcurrentHashMap<String, TableMetadata> loadCatalog(Connection dbConnection, String schema,
+                                                                        List<String> tables) throws SQLException {
 
-                long startTime = System.currentTimeMillis();
+        ConcurrentHashMap<String, TableMetadata> catalog = new ConcurrentHashMap<>();
+        if (tables.isEmpty()) {
+            return catalog;
+        }
 
-                String primaryCol = primaryColMap.get(table);
+        // information_schema may return the table names in a different case, e.g. with lower_case_table_names=1.
+        // Returned names are mapped back to the requested names, which are used to look up the catalog.
+        HashMap<String, String> tableNames = new HashMap<>();
+        StringBuilder bindVariables = new StringBuilder();
+        for (int i = 0; i < tables.size(); i++) {
+            if (i > 0) {
+                bindVariables.append(", ");
+            }
+            bindVariables.append('?');
+            tableNames.put(tables.get(i).toUpperCase(Locale.ROOT), tables.get(i));
+        }
 
-                try {
-                    String sourceTable = sourceDatabaseName + "." + table;
-                    String targetTable = targetDatabaseName + "." + table;
+        long startTime = System.currentTimeMillis();
 
-                    int targetDBSyncVersion = 0;
-                    int endingSyncId = 0;
+        String query = "SELECT TABLE_NAME, COLUMN_NAME, COLUMN_TYPE, COLUMN_KEY FROM information_schema.COLUMNS WHERE "
+                + "TABLE_SCHEMA = ? AND TABLE_NAME IN (" + bindVariables + ") ORDER BY TABLE_NAME, ORDINAL_POSITION;";
+        try (PreparedStatement preparedStatement = prepareCatalogStatement(dbConnection, query, schema, tables);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
 
-                    try (ResultSet resultSet = targetSyncVersionPsMap.get(table).executeQuery()) {
+            while (resultSet.next()) {
+                String table = getRequestedName(tableNames, resultSet.getString("TABLE_NAME"));
+                TableMetadata metadata = catalog.computeIfAbsent(table, TableMetadata::new);
+                metadata.addColumn(resultSet.getString(COLUMN_NAME), resultSet.getString(COLUMN_TYPE),
+                        "PRI".equals(resultSet.getString("COLUMN_KEY")));
+            }
+        }
 
-                        if (resultSet.next()) {
+        query = "SELECT TABLE_NAME, REFERENCED_TABLE_NAME FROM information_schema.KEY_COLUMN_USAGE WHERE "
+                + "TABLE_SCHEMA = ? AND TABLE_NAME IN (" + bindVariables + ") AND REFERENCED_TABLE_NAME IS NOT NULL "
+                + "AND REFERENCED_TABLE_SCHEMA = TABLE_SCHEMA;";
+        try (PreparedStatement preparedStatement = prepareCatalogStatement(dbConnection, query, schema, tables);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+
+            while (resultSet.next()) {
+                TableMetadata metadata = catalog.get(getRequestedName(tableNames, resultSet.getString("TABLE_NAME")));
+                if (null != metadata) {
+                    metadata.addReferencedTable(getRequestedName(tableNames,
+                            resultSet.getString("REFERENCED_TABLE_NAME")));
+                }
+            }
+        }
 
-                            targetDBSyncVersion = resultSet.getInt("SYNC_ID");
-                            if (resultSet.wasNull()) {
+        query = "SELECT EVENT_OBJECT_TABLE, TRIGGER_NAME FROM information_schema.TRIGGERS WHERE "
+                + "TRIGGER_SCHEMA = ? AND EVENT_OBJECT_TABLE IN (" + bindVariables + ");";
+        try (PreparedStatement preparedStatement = prepareCatalogStatement(dbConnection, query, schema, tables);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
 
-                                log.error(String.format("Sync version returned from target is null. Data sync avoided " +
-                                        "for this cycle. Table [%s] ", table));
-                                continue;
-                            }
-                        }
-                    }
+            while (resultSet.next()) {
+                TableMetadata metadata = catalog.get(getRequestedName(tableNames,
+                        resultSet.getString("EVENT_OBJECT_TABLE")));
+                if (null != metadata) {
+                    metadata.addTrigger(resultSet.getString("TRIGGER_NAME"));
+                }
+            }
+        }
 
-                    ArrayList<String> updatingKeys = new ArrayList<>();
+        log.info(String.format("Loaded catalog of [%s] tables from database [%s], Elapsed time [%s ms]",
+                catalog.size(), schema, System.currentTimeMillis() - startTime));
 
-                    if (!dataInformationPsMap.contains(table)) {
-                        String query = "SELECT MAX(SYNC_ID) FROM (" +
-                                "SELECT SYNC_ID FROM " + sourceTable + "_SYNC WHERE SYNC_ID > ? limit " + batchSize + ") AS T;";
-                        dataInformationPsMap.put(table, sourceDBConnection.prepareStatement(query));
-                    }
-                    dataInformationPsMap.get(table).setInt(1, targetDBSyncVersion);
+        return catalog;
+    }
 
-                    try (ResultSet resultSet = dataInformationPsMap.get(table).executeQuery()) {
+    private static String getRequestedName(HashMap<String, String> tableNames, String table) {
 
-                        if (resultSet.next()) {
+        String requestedName = tableNames.get(table.toUpperCase(Locale.ROOT));
+        return null == requestedName ? table : requestedName;
+    }
 
-                            endingSyncId = resultSet.getInt("MAX(SYNC_ID)");
-                        }
-                    }
-                    if (!dataExtractionPsMap.contains(table)) {
+    private static PreparedStatement prepareCatalogStatement(Connection dbConnection, String query, String schema,
+                                                             List<String> tables) throws SQLException {
 
-                        String query = "SELECT * FROM " + sourceTable + " WHERE " + primaryCol + " IN ( SELECT * FROM (SELECT DISTINCT "
-                                + primaryCol + " FROM " + sourceTable + "_SYNC WHERE SYNC_ID > ? AND SYNC_ID <= ? )AS T);";
+        PreparedStatement preparedStatement = dbConnection.prepareStatement(query);
+        preparedStatement.setString(1, schema);
+        for (int i = 0; i < tables.size(); i++) {
+            preparedStatement.setString(i + 2, tables.get(i));
+        }
+        return preparedStatement;
+    }
 
-                        dataExtractionPsMap.put(table, sourceDBConnection.prepareStatement(query));
-                    }
-                    dataExtractionPsMap.get(table).setInt(1, targetDBSyncVersion);
-                    dataExtractionPsMap.get(table).setInt(2, endingSyncId);
+    /**
+     * Compares the source and target catalogs of the sync tables, so that schema drift is reported at startup rather
+     * than failing while synchronizing. Tables which cannot be synchronized are left out. Remaining tables are ordered
+     * so that referenced tables are synchronized before the tables referring to them.
+     *
+     * @return tables which can be synchronized
+     */
+    private static String[] detectSchemaDrift(ConcurrentHashMap<String, TableMetadata> sourceCatalog,
+                                              ConcurrentHashMap<String, TableMetadata> targetCatalog) {
 
-                    boolean updateSuccess;
+        ArrayList<String> tables = new ArrayList<>();
 
-                    long t0Time = System.currentTimeMillis();
+        for (String table : syncTables) {
 
-                    try (ResultSet resultSet = dataExtractionPsMap.get(table).executeQuery()) {
+            TableMetadata sourceMetadata = sourceCatalog.get(table);
+            TableMetadata syncLogMetadata = sourceCatalog.get(table + "_SYNC");
+            TableMetadata targetMetadata = targetCatalog.get(table);
 
-                        if (log.isDebugEnabled()) {
-                            long t1Time = System.currentTimeMillis();
-                            log.info(String.format("Table [%s], Elapsed time for data extraction [%s ms], Target sync version [%s]",
-                                    table, t1Time - t0Time, targetDBSyncVersion));
-                        }
+            if (null == sourceMetadata) {
+                log.error(String.format("Table [%s] does not exist in source database. Table is not synchronized",
+                        table));
+                continue;
+            }
+            String primaryCol = sourceMetadata.getPrimaryCol();
+            if (null == primaryCol) {
+                log.error(String.format("Table [%s] does not have a primary key. Table is not synchronized", table));
+                continue;
+            }
+            if (null == syncLogMetadata || null == syncLogMetadata.getColumnType(primaryCol)) {
+                log.error(String.format("Sync log of table [%s] does not exist or does not match the primary key. "
+                        + "Run %s. Table is not synchronized", table, START_SYNC_LOG_COMMAND));
+                continue;
+            }
+            if (null == targetMetadata) {
+                log.error(String.format("Table [%s] does not exist in target database. Table is not synchronized",
+                        table));
+                continue;
+            }
+            if (!primaryCol.equals(targetMetadata.getPrimaryCol())) {
+                log.error(String.format("Primary key of table [%s] differs, Source [%s], Target [%s]. Table is not " +
+                        "synchronized", table, primaryCol, targetMetadata.getPrimaryCol()));
+                continue;
+            }
 
-                        ResultSetMetaData resultSetMetaData = resultSet.getMetaData();
-                        StringBuilder columnNames = new StringBuilder();
-                        StringBuilder bindVariables = new StringBuilder();
+            ArrayList<String> missingColumns = new ArrayList<>();
+            for (String column : sourceMetadata.getColumns()) {
 
-                        for (int i = 1; i <= resultSetMetaData.getColumnCount(); i++) {
+                String targetColumnType = targetMetadata.getColumnType(column);
+                if (null == targetColumnType) {
+                    missingColumns.add(column);
+                } else if (!targetColumnType.equals(sourceMetadata.getColumnType(column))) {
+                    log.warn(String.format("Column type differs, Table [%s], Column [%s], Source [%s], Target [%s]",
+                            table, column, sourceMetadata.getColumnType(column), targetColumnType));
+                }
+            }
+            if (!missingColumns.isEmpty()) {
+                log.error(String.format("Columns [%s] of table [%s] do not exist in target database. Table is not " +
+                        "synchronized", String.join(", ", missingColumns), table));
+                continue;
+            }
 
-                            if (i > 1) {
-                                columnNames.append(", ");
-                                bindVariables.append(", ");
-                            }
+            tables.add(table);
+        }
 
-                            columnNames.append(resultSetMetaData.getColumnName(i));
-                            bindVariables.append('?');
-                        }
+        ArrayList<String> orderedTables = new ArrayList<>();
+        for (String table : tables) {
+            orderByForeignKeys(table, tables, sourceCatalog, orderedTables, new HashSet<>());
+        }
+        return orderedTables.toArray(new String[0]);
+    }
 
-                        if (!dataUpdatePsMap.containsKey(table)) {
+    private static void orderByForeignKeys(String table, List<String> tables,
+                                           ConcurrentHashMap<String, TableMetadata> catalog,
+                                           List<String> orderedTables, Set<String> visiting) {
 
-                            String query = "REPLACE INTO " + targetTable + " ("
-                                    + columnNames
-                                    + ") VALUES ("
-                                    + bindVariables
-                                    + ");";
+        if (orderedTables.contains(table) || !visiting.add(table)) {
+            return;
+        }
+        for (String referencedTable : catalog.get(table).getReferencedTables()) {
+            if (tables.contains(referencedTable)) {
+                orderByForeignKeys(referencedTable, tables, catalog, orderedTables, visiting);
+            }
+        }
+        orderedTables.add(table);
+    }
 
-                            dataUpdatePsMap.put(table, targetDBConnection.prepareStatement(query));
-                        }
-                        PreparedStatement dataUpdatePs = dataUpdatePsMap.get(table);
+    private static void startSyncProcess() {
 
-                        while (resultSet.next()) {
-                            updatingKeys.add(resultSet.getString(primaryCol));
+        Connection targetDBConnection = getTargetDBConnection();
+        Connection sourceDBConnection = getSourceDBConnection();
 
-                            for (int i = 1; i <= resultSetMetaData.getColumnCount(); i++) {
-                                dataUpdatePs.setObject(i, resultSet.getObject(resultSetMetaData.getColumnName(i)));
-                            }
-                            dataUpdatePs.addBatch();
-                        }
+        if (null == targetDBConnection || null == sourceDBConnection) {
+            log.error("Could not make the database connection");
+            return;
+        }
 
-                        if (endingSyncId < targetDBSyncVersion) {
+        String[] tables = prepareSync(targetDBConnection, sourceDBConnection);
+        if (null == tables) {
+            return;
+        }
 
-                            continue;
-                        } else if (0 == endingSyncId) {
+        if (leaseEnabled) {
+            Runtime.getRuntime().addShutdownHook(new Thread(Runner::shutdown));
+        }
 
-                            if (log.isDebugEnabled())
-                                log.debug(String.format("No data to synchronize for table [%s]", table));
-                            continue;
-                        }
+        try {
+            syncTables(tables, sourceCatalog, taskInterval, targetDBConnection, sourceDBConnection);
+        } catch (InterruptedException e) {
+            log.error("Error occurred while running sync task", e);
+        }
+    }
 
-                        long t2Time = System.currentTimeMillis();
+    /**
+     * Detects schema drift of the sync tables and prepares the sync version tables, and the lease tables when leases
+     * are enabled, in the target database.
+     *
+     * @return tables which can be synchronized, or null if synchronization cannot be started
+     */
+    private static String[] prepareSync(Connection targetDBConnection, Connection sourceDBConnection) {
 
-                        int[] updateResults = dataUpdatePs.executeBatch();
+        String[] tables;
+        try {
+            ConcurrentHashMap<String, TableMetadata> targetCatalog = loadCatalog(targetDBConnection,
+                    targetDatabaseName, Arrays.asList(syncTables));
 
-                        if (log.isDebugEnabled()) {
-                            long t3Time = System.currentTimeMillis();
-                            log.info(String.format("Table [%s], Elapsed time for data update [%s ms], Target sync version [%s]",
-                                    table, t3Time - t2Time, targetDBSyncVersion));
-                        }
+            tables = detectSchemaDrift(getSourceCatalog(sourceDBConnection), targetCatalog);
+        } catch (SQLException e) {
+            log.error("Error occurred while reading the database catalogs", e);
+            return null;
+        }
 
-                        updateSuccess = determineUpdateResults(updateResults, table);
+        if (0 == tables.length) {
+            log.error("None of the configured tables can be synchronized");
+            return null;
+        }
 
-                        long endTime = System.currentTimeMillis();
-                        log.info(String.format("Table [%s], Elapsed time [%s ms], Target sync version [%s]",
-                                table, endTime - startTime, targetDBSyncVersion));
+        String query = null;
+        ArrayList<String> preparedTables = new ArrayList<>();
+
+        // Several synchronizer instances may start at the same time, hence the sync version and lease tables are
+        // read and prepared while holding a named lock in the target database.
+        String setupLock = targetDatabaseName + "." + SYNC_LEASE_TABLE + "_SETUP";
+        try (PreparedStatement preparedStatement = targetDBConnection.prepareStatement("SELECT GET_LOCK(?, ?);")) {
+            preparedStatement.setString(1, setupLock);
+            preparedStatement.setInt(2, SETUP_LOCK_TIMEOUT);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (!resultSet.next() || 1 != resultSet.getInt(1)) {
+                    log.error(String.format("Could not acquire the setup lock [%s] in target database", setupLock));
+                    return null;
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Error occurred while acquiring the setup lock in target database", e);
+            return null;
+        }
 
-                        if (log.isDebugEnabled())
-                            log.debug(String.format("Table [%s], Sync'ed primary keys [%s]",
-                                    table, String.join(", ", updatingKeys)));
+        try {
+            if (leaseEnabled) {
+                try {
+                    createLeaseTables(targetDBConnection);
+                } catch (SQLException e) {
+                    log.error("Error occurred while creating sync lease tables", e);
+                    return null;
+                }
+            }
 
-                        if (updateResults.length > 1) {
+            ConcurrentHashMap<String, TableMetadata> versionCatalog;
+            try {
+                ArrayList<String> versionTables = new ArrayList<>();
+                for (String table : tables) {
+                    versionTables.add(table + "_SYNC_VERSION");
+                }
+                versionCatalog = loadCatalog(targetDBConnection, targetDatabaseName, versionTables);
+            } catch (SQLException e) {
+                log.error("Error occurred while reading the sync version tables", e);
+                return null;
+            }
 
-                            activateWait = false;
+            for (String table : tables) {
+                try {
+                    String targetTable = targetDatabaseName + "." + table;
+                    int partitionCount = getPartitionCount(table);
+                    TableMetadata versionMetadata = versionCatalog.get(table + "_SYNC_VERSION");
+
+                    if (null == versionMetadata) {
+                        query = "CREATE TABLE IF NOT EXISTS " + targetTable + "_SYNC_VERSION (" +
+                                " SYNC_ID INT, PARTITION_ID INT NOT NULL DEFAULT 0) ENGINE=InnoDB DEFAULT CHARSET=latin1;";
+                        try (PreparedStatement preparedStatement = targetDBConnection.prepareStatement(query)) {
+                            preparedStatement.execute();
+                            log.info(String.format("Query: Create table for sync version at target database: [%s] ", query));
+                        }
+                    } else if (null == versionMetadata.getColumnType("PARTITION_ID")) {
+                        // Sync version tables created before partitioning was introduced hold a single row without a
+                        // partition id
+                        query = "ALTER TABLE " + targetTable + "_SYNC_VERSION ADD COLUMN PARTITION_ID INT NOT NULL" +
+                                " DEFAULT 0;";
+                        try (PreparedStatement preparedStatement = targetDBConnection.prepareStatement(query)) {
+                            preparedStatement.execute();
+                            log.info(String.format("Query: Add partition column to sync version table: [%s] ", query));
                         }
                     }
 
-                    if (updateSuccess) {
-                        if (!targetVersionUpdatePsMap.contains(table)) {
-
-                            String query = "UPDATE " + targetTable + "_SYNC_VERSION SET SYNC_ID = " + endingSyncId
-                                    + " WHERE SYNC_ID = ?;";
-                            targetVersionUpdatePsMap.put(table, targetDBConnection.prepareStatement(query));
-                        }
-                        targetVersionUpdatePsMap.get(table).setInt(1, targetDBSyncVersion);
-                        targetVersionUpdatePsMap.get(table).execute();
+                    preparePartitionVersions(targetDBConnection, table, partitionCount);
 
-                    } else {
-                        log.error(String.format("Update of the complete batch was not successful, avoiding target" +
-                                " DB sync version update, Table [%s]", table));
+                    if (leaseEnabled) {
+                        prepareLeases(targetDBConnection, table, partitionCount);
                     }
 
+                    preparedTables.add(table);
                 } catch (SQLException e) {
-                    if (e.getMessage().contains("Cannot add or update a child row: a foreign key constraint fails")) {
-                        log.warn("Foreign key constraint error occurred. Will be fixed in next round : " + e.getMessage());
-                    } else {
-                        log.error(String.format("Error occurred while running SQL, Table [%s]", table), e);
-                    }
+                    log.error(String.format("Error occurred while preparing sync version of table [%s]. Table is " +
+                            "not synchronized. Query : [%s] ", table, query), e);
                 }
             }
-            if (activateWait)
-                Thread.sleep(taskInterval);
+        } finally {
+            try (PreparedStatement preparedStatement = targetDBConnection.prepareStatement("SELECT RELEASE_LOCK(?);")) {
+                preparedStatement.setString(1, setupLock);
+                preparedStatement.execute();
+            } catch (SQLException e) {
+                log.error("Error occurred while releasing the setup lock in target database", e);
+            }
+        }
+
+        if (preparedTables.isEmpty()) {
+            log.error("None of the configured tables can be synchronized");
+            return null;
         }
+        return preparedTables.toArray(new String[0]);
     }
 
-    private static boolean determineUpdateResults(int[] updateResults, String table) {
+    /**
+     * Drains the sync logs of all tables into the target database while writes on the source database are frozen.
+     * Sync units are processed by thread.pool.size workers without waiting for the task interval, and the remaining
+     * events are reported periodically. Returns as soon as no sync unit has events left beyond its target sync
+     * version.
+     *
+     * @return true if every table reached the source high-water mark
+     */
+    private static boolean drain() {
 
-        ArrayList<String> failedUpdates = new ArrayList<>();
-        boolean updateSuccess = true;
+        long freezeStartTime = System.currentTimeMillis();
 
-        for (int updateResult : updateResults) {
-            if (updateResult == Statement.EXECUTE_FAILED) {
+        Connection targetDBConnection = getTargetDBConnection();
+        Connection sourceDBConnection = getSourceDBConnection();
 
-                updateSuccess = false;
+        if (null == targetDBConnection || null == sourceDBConnection) {
+            log.error("Could not make the database connection");
+            return false;
+        }
+
+        String[] tables = prepareSync(targetDBConnection, sourceDBConnection);
+        if (null == tables) {
+            return false;
+        }
+
+        // Cutover must not go ahead while any configured table is left out of synchronization
+        List<String> preparedTables = Arrays.asList(tables);
+        ArrayList<String> excludedTables = new ArrayList<>();
+        for (String table : syncTables) {
+            if (!preparedTables.contains(table)) {
+                excludedTables.add(table);
+            }
+        }
+        if (!excludedTables.isEmpty()) {
+            log.error(String.format("Tables [%s] cannot be synchronized. Drain is not started",
+                    String.join(", ", excludedTables)));
+            return false;
+        }
+
+        List<SyncUnit> units = getSyncUnits(tables);
+        SyncContext context = new SyncContext(sourceDBConnection, targetDBConnection, false);
+        ConcurrentHashMap<String, Integer> tableHighWaterMarks = new ConcurrentHashMap<>();
+        ConcurrentHashMap<String, DrainState> drainStates = new ConcurrentHashMap<>();
+
+        // Writes are frozen, hence the high-water mark of each sync unit is read only once
+        try {
+            for (String table : tables) {
+                int highWaterMark = getSourceHighWaterMark(table, sourceDBConnection);
+                tableHighWaterMarks.put(table, highWaterMark);
+                log.info(String.format("Table [%s], Source high-water mark [%s]", table, highWaterMark));
+            }
+            for (SyncUnit unit : units) {
+                drainStates.put(unit.getKey(), readDrainState(unit,
+                        sourceCatalog.get(unit.getTable()).getPrimaryCol(), context));
+            }
+        } catch (SQLException e) {
+            log.error("Error occurred while reading the events to drain", e);
+            return false;
+        }
+
+        // Units are queued in foreign key order, so that referenced tables are drained first
+        LinkedBlockingQueue<SyncUnit> pendingUnits = new LinkedBlockingQueue<>();
+        for (SyncUnit unit : units) {
+            if (drainStates.get(unit.getKey()).getRemainingEvents() > 0) {
+                pendingUnits.add(unit);
+            }
+        }
+        Set<String> failedUnits = ConcurrentHashMap.newKeySet();
+
+        log.info(String.format("Draining [%s] events of [%s] sync units", getRemainingEvents(drainStates.values()),
+                pendingUnits.size()));
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> reportDrainProgress(tables, units, drainStates, freezeStartTime),
+                DRAIN_REPORT_INTERVAL, DRAIN_REPORT_INTERVAL, TimeUnit.MILLISECONDS);
+
+        int threadCount = Math.max(1, Math.min(threadPoolSize, pendingUnits.size()));
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            executorService.submit(() -> drainUnits(pendingUnits, drainStates, failedUnits));
+        }
+        executorService.shutdown();
+
+        try {
+            executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            log.error("Interrupted while waiting for the drain to complete", e);
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            reporter.shutdownNow();
+        }
+
+        long freezeDuration = System.currentTimeMillis() - freezeStartTime;
+
+        long remainingEvents = getRemainingEvents(drainStates.values());
+        if (!failedUnits.isEmpty() || remainingEvents > 0) {
+            log.error(String.format("Drain did not complete, Failed sync units [%s], Remaining events [%s], " +
+                    "Elapsed time [%s ms]", String.join(", ", failedUnits), remainingEvents, freezeDuration));
+            return false;
+        }
+
+        try {
+            for (String table : tables) {
+                int highWaterMark = getSourceHighWaterMark(table, sourceDBConnection);
+                if (highWaterMark != tableHighWaterMarks.get(table)) {
+                    log.warn(String.format("Table [%s], Source high-water mark moved from [%s] to [%s] while " +
+                            "draining. Writes on the source database were not frozen", table,
+                            tableHighWaterMarks.get(table), highWaterMark));
+                } else {
+                    log.info(String.format("Table [%s], Drained up to source high-water mark [%s]", table,
+                            highWaterMark));
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Error occurred while reading the source high-water marks", e);
+        }
+
+        long drainedEvents = 0;
+        for (DrainState drainState : drainStates.values()) {
+            drainedEvents += drainState.getInitialEvents();
+        }
+        log.info(String.format("All tables reached the source high-water mark. Drained [%s] events, Write freeze " +
+                "duration [%s ms]", drainedEvents, freezeDuration));
+        return true;
+    }
+
+    /**
+     * Drains the sync units taken from the queue using its own database connections. A unit which fails is put
+     * back to the end of the queue, since a foreign key failure is resolved once the referenced table is drained.
+     * Failures while a referenced table is still being drained are deferred, up to DRAIN_MAX_DEFERRALS times so
+     * that tables referencing each other cannot retry forever. Other failures are counted, and a unit is given up
+     * after DRAIN_MAX_FAILURES of them.
+     */
+    private static void drainUnits(LinkedBlockingQueue<SyncUnit> pendingUnits,
+                                   ConcurrentHashMap<String, DrainState> drainStates, Set<String> failedUnits) {
+
+        Connection targetDBConnection = getTargetDBConnection();
+        Connection sourceDBConnection = getSourceDBConnection();
+
+        try {
+            if (null == targetDBConnection || null == sourceDBConnection) {
+                log.error("Could not make the database connection");
+                return;
+            }
+
+            SyncContext context = new SyncContext(sourceDBConnection, targetDBConnection, false);
+
+            SyncUnit unit;
+            while (null != (unit = pendingUnits.poll())) {
+
+                DrainState drainState = drainStates.get(unit.getKey());
+                if (drainUnit(unit, context, drainState)) {
+                    if (log.isDebugEnabled()) {
+                        log.debug(String.format("Sync unit [%s] is drained", unit.getKey()));
+                    }
+                    continue;
+                }
+
+                if (hasPendingReferences(unit.getTable(), drainStates)
+                        && drainState.deferFailure() <= DRAIN_MAX_DEFERRALS) {
+                    if (log.isDebugEnabled()) {
+                        log.debug(String.format("Sync unit [%s] waits for referenced tables to be drained",
+                                unit.getKey()));
+                    }
+                } else if (drainState.countFailure() >= DRAIN_MAX_FAILURES) {
+                    log.error(String.format("Giving up draining sync unit [%s] after [%s] failures", unit.getKey(),
+                            drainState.getFailures()));
+                    drainState.setFailed();
+                    failedUnits.add(unit.getKey());
+                    continue;
+                }
+
+                pendingUnits.add(unit);
+                Thread.sleep(DRAIN_RETRY_INTERVAL);
+            }
+        } catch (InterruptedException e) {
+            log.error("Interrupted while draining sync units", e);
+            Thread.currentThread().interrupt();
+        } finally {
+            closeConnection(targetDBConnection);
+            closeConnection(sourceDBConnection);
+        }
+    }
+
+    /**
+     * Synchronizes batches of the sync unit until its target sync version reaches the high-water mark of the unit.
+     *
+     * @return true if the unit is drained, false if a batch failed or the sync version did not move forward
+     */
+    private static boolean drainUnit(SyncUnit unit, SyncContext context, DrainState drainState) {
+
+        String primaryCol = sourceCatalog.get(unit.getTable()).getPrimaryCol();
+        int previousVersion = -1;
+
+        try {
+            while (true) {
+
+                Integer targetSyncVersion = getTargetSyncVersion(unit, context);
+                if (null == targetSyncVersion) {
+                    log.error(String.format("Sync version returned from target is null, Sync unit [%s]",
+                            unit.getKey()));
+                    return false;
+                }
+                drainState.setSyncVersion(targetSyncVersion);
+
+                if (targetSyncVersion >= drainState.getHighWaterMark()) {
+                    return true;
+                }
+                if (targetSyncVersion == previousVersion) {
+                    log.warn(String.format("Sync version did not move forward, Sync unit [%s], Sync version [%s], " +
+                            "High-water mark [%s]", unit.getKey(), targetSyncVersion, drainState.getHighWaterMark()));
+                    return false;
+                }
+                previousVersion = targetSyncVersion;
+
+                if (syncBatch(unit, primaryCol, context) < 0) {
+                    return false;
+                }
+            }
+        } catch (SQLException e) {
+            log.error(String.format("Error occurred while reading the target sync version, Sync unit [%s]",
+                    unit.getKey()), e);
+            return false;
+        }
+    }
+
+    private static boolean hasPendingReferences(String table, ConcurrentHashMap<String, DrainState> drainStates) {
+
+        for (String referencedTable : sourceCatalog.get(table).getReferencedTables()) {
+
+            if (referencedTable.equals(table)) {
+                continue;
+            }
+            // A unit which was given up is never drained, hence it is not waited for
+            for (Map.Entry<String, DrainState> entry : drainStates.entrySet()) {
+                if (entry.getKey().startsWith(referencedTable + "#") && !entry.getValue().isFailed()
+                        && entry.getValue().getRemainingEvents() > 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the target sync version, the high-water mark and the number of events of the sync unit with a single
+     * query over the remaining sync log.
+     */
+    private static DrainState readDrainState(SyncUnit unit, String primaryCol, SyncContext context)
+            throws SQLException {
+
+        Integer targetSyncVersion = getTargetSyncVersion(unit, context);
+        if (null == targetSyncVersion) {
+            throw new SQLException("Sync version returned from target is null. Sync unit [" + unit.getKey() + "]");
+        }
+
+        String query = "SELECT COALESCE(MAX(SYNC_ID), 0), COUNT(*) FROM " + sourceDatabaseName + "." + unit.getTable()
+                + "_SYNC WHERE SYNC_ID > ?" + unit.getPartitionFilter(primaryCol) + ";";
+        try (PreparedStatement preparedStatement = context.sourceDBConnection.prepareStatement(query)) {
+            preparedStatement.setInt(1, targetSyncVersion);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                resultSet.next();
+                return new DrainState(targetSyncVersion, resultSet.getInt(1), resultSet.getLong(2));
+            }
+        }
+    }
+
+    private static int getSourceHighWaterMark(String table, Connection sourceDBConnection) throws SQLException {
+
+        String query = "SELECT COALESCE(MAX(SYNC_ID), 0) FROM " + sourceDatabaseName + "." + table + "_SYNC;";
+        try (PreparedStatement preparedStatement = sourceDBConnection.prepareStatement(query);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private static void reportDrainProgress(String[] tables, List<SyncUnit> units,
+                                            ConcurrentHashMap<String, DrainState> drainStates, long startTime) {
+
+        long elapsedTime = System.currentTimeMillis() - startTime;
+
+        for (String table : tables) {
+
+            long initial = 0;
+            long remaining = 0;
+            for (SyncUnit unit : units) {
+                if (unit.getTable().equals(table)) {
+                    DrainState drainState = drainStates.get(unit.getKey());
+                    initial += drainState.getInitialEvents();
+                    remaining += drainState.getRemainingEvents();
+                }
+            }
+
+            if (remaining > 0) {
+                log.info(String.format("Table [%s], Remaining events [%s], Estimated time [%s]", table, remaining,
+                        estimateDrainTime(initial, remaining, elapsedTime)));
+            }
+        }
+
+        long initial = 0;
+        for (DrainState drainState : drainStates.values()) {
+            initial += drainState.getInitialEvents();
+        }
+        long remaining = getRemainingEvents(drainStates.values());
+        log.info(String.format("Drain progress, Remaining events [%s] of [%s], Elapsed time [%s ms], Estimated time " +
+                "[%s]", remaining, initial, elapsedTime, estimateDrainTime(initial, remaining, elapsedTime)));
+    }
+
+    private static String estimateDrainTime(long initial, long remaining, long elapsedTime) {
+
+        long drained = initial - remaining;
+        if (drained <= 0) {
+            return "unknown";
+        }
+        return (remaining * elapsedTime / drained) + " ms";
+    }
+
+    private static long getRemainingEvents(Collection<DrainState> drainStates) {
+
+        long remaining = 0;
+        for (DrainState drainState : drainStates) {
+            remaining += drainState.getRemainingEvents();
+        }
+        return remaining;
+    }
+
+    private static void closeConnection(Connection dbConnection) {
+
+        if (null != dbConnection) {
+            try {
+                dbConnection.close();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Makes sure the sync version table of the given table has exactly one row per partition. When the partition
+     * count has changed since the last run, every partition restarts from the lowest recorded sync version, since
+     * the primary keys are hashed into different partitions afterwards. Re-applying already synchronized rows is
+     * harmless as rows are replaced in the target database.
+     */
+    private static void preparePartitionVersions(Connection targetDBConnection, String table, int partitionCount)
+            throws SQLException {
+
+        String versionTable = targetDatabaseName + "." + table + "_SYNC_VERSION";
+
+        int rowCount;
+        int minSyncId;
+        int maxPartition;
+        String query = "SELECT COUNT(*), COALESCE(MIN(SYNC_ID), 0), COALESCE(MAX(PARTITION_ID), -1) FROM "
+                + versionTable + ";";
+        try (PreparedStatement preparedStatement = targetDBConnection.prepareStatement(query);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            resultSet.next();
+            rowCount = resultSet.getInt(1);
+            minSyncId = resultSet.getInt(2);
+            maxPartition = resultSet.getInt(3);
+        }
+
+        if (rowCount == partitionCount && maxPartition == partitionCount - 1) {
+            return;
+        }
+
+        if (rowCount > 0) {
+            log.info(String.format("Partition count of table [%s] changed to [%s]. All partitions resume from sync " +
+                    "version [%s]", table, partitionCount, minSyncId));
+        }
+
+        boolean autoCommit = targetDBConnection.getAutoCommit();
+        targetDBConnection.setAutoCommit(false);
+        try {
+            try (PreparedStatement preparedStatement = targetDBConnection.prepareStatement("DELETE FROM "
+                    + versionTable + ";")) {
+                preparedStatement.execute();
+            }
+
+            query = "INSERT INTO " + versionTable + " (SYNC_ID, PARTITION_ID) VALUES (?, ?);";
+            try (PreparedStatement preparedStatement = targetDBConnection.prepareStatement(query)) {
+                for (int partition = 0; partition < partitionCount; partition++) {
+                    preparedStatement.setInt(1, minSyncId);
+                    preparedStatement.setInt(2, partition);
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+                log.info(String.format("Query: Insert [%s] partition versions: [%s] ", partitionCount, query));
+            }
+            targetDBConnection.commit();
+        } catch (SQLException e) {
+            targetDBConnection.rollback();
+            throw e;
+        } finally {
+            targetDBConnection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static void createLeaseTables(Connection targetDBConnection) throws SQLException {
+
+        String query = "CREATE TABLE IF NOT EXISTS " + targetDatabaseName + "." + SYNC_LEASE_TABLE + " (" +
+                " TABLE_NAME VARCHAR(64) NOT NULL, PARTITION_ID INT NOT NULL, OWNER VARCHAR(255)," +
+                " LEASE_EXPIRY DATETIME(3), PRIMARY KEY (TABLE_NAME, PARTITION_ID)) ENGINE=InnoDB DEFAULT CHARSET=latin1;";
+        try (PreparedStatement preparedStatement = targetDBConnection.prepareStatement(query)) {
+            preparedStatement.execute();
+            log.info(String.format("Query: Create table for sync leases at target database: [%s] ", query));
+        }
+
+        query = "CREATE TABLE IF NOT EXISTS " + targetDatabaseName + "." + SYNC_INSTANCE_TABLE + " (" +
+                " INSTANCE_ID VARCHAR(255) NOT NULL, HEARTBEAT_EXPIRY DATETIME(3), PRIMARY KEY (INSTANCE_ID))" +
+                " ENGINE=InnoDB DEFAULT CHARSET=latin1;";
+        try (PreparedStatement preparedStatement = targetDBConnection.prepareStatement(query)) {
+            preparedStatement.execute();
+            log.info(String.format("Query: Create table for synchronizer instances at target database: [%s] ",
+                    query));
+        }
+    }
+
+    private static void prepareLeases(Connection targetDBConnection, String table, int partitionCount)
+            throws SQLException {
+
+        String leaseTable = targetDatabaseName + "." + SYNC_LEASE_TABLE;
+
+        try (PreparedStatement preparedStatement = targetDBConnection.prepareStatement("INSERT IGNORE INTO "
+                + leaseTable + " (TABLE_NAME, PARTITION_ID) VALUES (?, ?);")) {
+            for (int partition = 0; partition < partitionCount; partition++) {
+                preparedStatement.setString(1, table);
+                preparedStatement.setInt(2, partition);
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        }
+
+        try (PreparedStatement preparedStatement = targetDBConnection.prepareStatement("DELETE FROM " + leaseTable
+                + " WHERE TABLE_NAME = ? AND PARTITION_ID >= ?;")) {
+            preparedStatement.setString(1, table);
+            preparedStatement.setInt(2, partitionCount);
+            preparedStatement.execute();
+        }
+    }
+
+    /**
+     * Heartbeat of this synchronizer instance. Renews the leases owned by this instance and balances the sync units
+     * among the live instances. An instance claims unowned or expired leases until it holds its fair share, and
+     * releases the leases above its fair share so that newly joined instances can pick them up. Expired leases of a
+     * dead instance are taken over and synchronization resumes from the sync version recorded in the target database.
+     *
+     * @param targetDBConnection target database connection where the lease tables are kept
+     * @param units              sync units configured for this instance
+     * @param ownedUnits         keys of the sync units owned by this instance, updated in place
+     */
+    private static void renewLeases(Connection targetDBConnection, List<SyncUnit> units, Set<String> ownedUnits) {
+
+        String leaseTable = targetDatabaseName + "." + SYNC_LEASE_TABLE;
+        String instanceTable = targetDatabaseName + "." + SYNC_INSTANCE_TABLE;
+        long leaseDurationMicros = leaseDuration * 1000L;
+
+        try {
+            try (PreparedStatement preparedStatement = targetDBConnection.prepareStatement("INSERT INTO "
+                    + instanceTable + " (INSTANCE_ID, HEARTBEAT_EXPIRY) VALUES (?, TIMESTAMPADD(MICROSECOND, ?, NOW(3)))"
+                    + " ON DUPLICATE KEY UPDATE HEARTBEAT_EXPIRY = VALUES(HEARTBEAT_EXPIRY);")) {
+                preparedStatement.setString(1, instanceId);
+                preparedStatement.setLong(2, leaseDurationMicros);
+                preparedStatement.execute();
+            }
+
+            int liveInstances;
+            try (PreparedStatement preparedStatement = targetDBConnection.prepareStatement("SELECT COUNT(*) FROM "
+                    + instanceTable + " WHERE HEARTBEAT_EXPIRY > NOW(3);");
+                 ResultSet resultSet = preparedStatement.executeQuery()) {
+                resultSet.next();
+                liveInstances = Math.max(1, resultSet.getInt(1));
+            }
+            int fairShare = (units.size() + liveInstances - 1) / liveInstances;
+
+            try (PreparedStatement preparedStatement = targetDBConnection.prepareStatement("UPDATE " + leaseTable
+                    + " SET LEASE_EXPIRY = TIMESTAMPADD(MICROSECOND, ?, NOW(3)) WHERE OWNER = ?;")) {
+                preparedStatement.setLong(1, leaseDurationMicros);
+                preparedStatement.setString(2, instanceId);
+                preparedStatement.execute();
+            }
+
+            Set<String> leasedUnits = new HashSet<>();
+            try (PreparedStatement preparedStatement = targetDBConnection.prepareStatement("SELECT TABLE_NAME, "
+                    + "PARTITION_ID FROM " + leaseTable + " WHERE OWNER = ?;")) {
+                preparedStatement.setString(1, instanceId);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        leasedUnits.add(SyncUnit.getKey(resultSet.getString(1), resultSet.getInt(2)));
+                    }
+                }
+            }
+
+            for (String unitKey : ownedUnits) {
+                if (!leasedUnits.contains(unitKey)) {
+                    log.warn(String.format("Lease of sync unit [%s] is now owned by another instance", unitKey));
+                }
+            }
+            ownedUnits.clear();
+            for (SyncUnit unit : units) {
+                if (leasedUnits.contains(unit.getKey())) {
+                    ownedUnits.add(unit.getKey());
+                }
+            }
+
+            if (ownedUnits.size() > fairShare) {
+                try (PreparedStatement preparedStatement = targetDBConnection.prepareStatement("UPDATE " + leaseTable
+                        + " SET OWNER = NULL, LEASE_EXPIRY = NULL WHERE TABLE_NAME = ? AND PARTITION_ID = ? AND "
+                        + "OWNER = ?;")) {
+                    for (int i = units.size() - 1; i >= 0 && ownedUnits.size() > fairShare; i--) {
+                        SyncUnit unit = units.get(i);
+                        if (ownedUnits.remove(unit.getKey())) {
+                            preparedStatement.setString(1, unit.getTable());
+                            preparedStatement.setInt(2, unit.getPartition());
+                            preparedStatement.setString(3, instanceId);
+                            preparedStatement.execute();
+                            log.info(String.format("Released lease of sync unit [%s] for rebalancing among [%s] " +
+                                    "instances", unit.getKey(), liveInstances));
+                        }
+                    }
+                }
+            } else if (ownedUnits.size() < fairShare) {
+                try (PreparedStatement selectStatement = targetDBConnection.prepareStatement("SELECT TABLE_NAME, "
+                        + "PARTITION_ID, OWNER FROM " + leaseTable + " WHERE OWNER IS NULL OR LEASE_EXPIRY < NOW(3);");
+                     PreparedStatement claimStatement = targetDBConnection.prepareStatement("UPDATE " + leaseTable
+                             + " SET OWNER = ?, LEASE_EXPIRY = TIMESTAMPADD(MICROSECOND, ?, NOW(3)) WHERE "
+                             + "TABLE_NAME = ? AND PARTITION_ID = ? AND (OWNER IS NULL OR LEASE_EXPIRY < NOW(3));");
+                     ResultSet resultSet = selectStatement.executeQuery()) {
+
+                    while (resultSet.next() && ownedUnits.size() < fairShare) {
+                        String table = resultSet.getString(1);
+                        int partition = resultSet.getInt(2);
+                        String previousOwner = resultSet.getString(3);
+                        String unitKey = SyncUnit.getKey(table, partition);
+
+                        if (!containsUnit(units, unitKey)) {
+                            continue;
+                        }
+
+                        claimStatement.setString(1, instanceId);
+                        claimStatement.setLong(2, leaseDurationMicros);
+                        claimStatement.setString(3, table);
+                        claimStatement.setInt(4, partition);
+                        if (1 == claimStatement.executeUpdate()) {
+                            ownedUnits.add(unitKey);
+                            if (null == previousOwner) {
+                                log.info(String.format("Claimed lease of sync unit [%s]", unitKey));
+                            } else {
+                                log.warn(String.format("Took over lease of sync unit [%s] from expired instance [%s]",
+                                        unitKey, previousOwner));
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("Instance [%s] owns sync units [%s], Live instances [%s]", instanceId,
+                        String.join(", ", ownedUnits), liveInstances));
+            }
+        } catch (SQLException e) {
+            log.error("Error occurred while renewing sync leases", e);
+        }
+    }
+
+    private static boolean containsUnit(List<SyncUnit> units, String unitKey) {
+
+        for (SyncUnit unit : units) {
+            if (unit.getKey().equals(unitKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Shutdown hook of the sync process. Stops the sync task from renewing or claiming leases, and then releases the
+     * leases held by this instance.
+     */
+    private static void shutdown() {
+
+        synchronized (LEASE_LOCK) {
+            shuttingDown = true;
+            releaseLeases();
+        }
+    }
+
+    /**
+     * Releases every lease held by this instance so that other instances can take over without waiting for the
+     * leases to expire. Invoked when the synchronizer is shutting down.
+     */
+    private static void releaseLeases() {
+
+        try (Connection targetDBConnection = getTargetDBConnection()) {
+
+            if (null == targetDBConnection) {
+                log.error("Could not make the database connection to release sync leases");
+                return;
+            }
+
+            try (PreparedStatement preparedStatement = targetDBConnection.prepareStatement("UPDATE "
+                    + targetDatabaseName + "." + SYNC_LEASE_TABLE + " SET OWNER = NULL, LEASE_EXPIRY = NULL " +
+                    "WHERE OWNER = ?;")) {
+                preparedStatement.setString(1, instanceId);
+                preparedStatement.execute();
+            }
+
+            try (PreparedStatement preparedStatement = targetDBConnection.prepareStatement("DELETE FROM "
+                    + targetDatabaseName + "." + SYNC_INSTANCE_TABLE + " WHERE INSTANCE_ID = ?;")) {
+                preparedStatement.setString(1, instanceId);
+                preparedStatement.execute();
+            }
+            log.info(String.format("Released sync leases of instance [%s]", instanceId));
+        } catch (SQLException e) {
+            log.error("Error occurred while releasing sync leases", e);
+        }
+    }
+
+    private static void syncTables(String[] tables, ConcurrentHashMap<String, TableMetadata> catalog,
+                                   int taskInterval, Connection targetDBConnection, Connection sourceDBConnection)
+            throws InterruptedException {
+
+        SyncContext context = new SyncContext(sourceDBConnection, targetDBConnection, leaseEnabled);
+        List<SyncUnit> units = getSyncUnits(tables);
+        Set<String> ownedUnits = new HashSet<>();
+        long lastHeartbeat = 0;
+
+        while (!shuttingDown) {
+
+            if (log.isDebugEnabled()) {
+                log.debug("Running sync task...");
+            }
+
+            boolean activateWait = true;
+            for (SyncUnit unit : units) {
+
+                if (shuttingDown) {
+                    break;
+                }
+
+                if (leaseEnabled) {
+                    if (System.currentTimeMillis() - lastHeartbeat >= leaseDuration / 3) {
+                        // Leases are not renewed once the shutdown hook started releasing them
+                        synchronized (LEASE_LOCK) {
+                            if (shuttingDown) {
+                                break;
+                            }
+                            renewLeases(targetDBConnection, units, ownedUnits);
+                        }
+                        lastHeartbeat = System.currentTimeMillis();
+                    }
+                    if (!ownedUnits.contains(unit.getKey())) {
+                        continue;
+                    }
+                }
+
+                if (syncBatch(unit, catalog.get(unit.getTable()).getPrimaryCol(), context) > 1) {
+                    activateWait = false;
+                }
+            }
+            if (activateWait && !shuttingDown)
+                Thread.sleep(taskInterval);
+        }
+        log.info("Sync task stopped since the synchronizer is shutting down");
+    }
+
+    private static List<SyncUnit> getSyncUnits(String[] tables) {
+
+        List<SyncUnit> units = new ArrayList<>();
+        for (String table : tables) {
+
+            int partitionCount = getPartitionCount(table);
+            for (int partition = 0; partition < partitionCount; partition++) {
+                units.add(new SyncUnit(table, partition, partitionCount));
+            }
+        }
+        return units;
+    }
+
+    private static Integer getTargetSyncVersion(SyncUnit unit, SyncContext context) throws SQLException {
+
+        String unitKey = unit.getKey();
+        if (!context.targetSyncVersionPsMap.containsKey(unitKey)) {
+
+            String query = "SELECT SYNC_ID FROM " + targetDatabaseName + "." + unit.getTable() + "_SYNC_VERSION WHERE " +
+                    "PARTITION_ID = " + unit.getPartition() + ";";
+            context.targetSyncVersionPsMap.put(unitKey, context.targetDBConnection.prepareStatement(query));
+        }
+
+        try (ResultSet resultSet = context.targetSyncVersionPsMap.get(unitKey).executeQuery()) {
+
+            if (resultSet.next()) {
+
+                int targetDBSyncVersion = resultSet.getInt("SYNC_ID");
+                return resultSet.wasNull() ? null : targetDBSyncVersion;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Synchronizes the next batch of the given sync unit and moves the target sync version forward.
+     *
+     * @param unit       sync unit
+     * @param primaryCol primary key column of the table
+     * @param context    connections and prepared statements of the calling thread
+     * @return number of rows written to the target database, or -1 if the batch could not be synchronized
+     */
+    private static int syncBatch(SyncUnit unit, String primaryCol, SyncContext context) {
+
+        long startTime = System.currentTimeMillis();
+
+        String table = unit.getTable();
+        String unitKey = unit.getKey();
+        boolean committed = false;
+
+        try {
+            // Data writes and the sync version update are committed together, so that rows of a batch are never
+            // left in the target database without the matching sync version
+            context.targetDBConnection.setAutoCommit(false);
+
+            String sourceTable = sourceDatabaseName + "." + table;
+            String targetTable = targetDatabaseName + "." + table;
+            String partitionFilter = unit.getPartitionFilter(primaryCol);
+
+            int endingSyncId = 0;
+
+            Integer targetSyncVersion = getTargetSyncVersion(unit, context);
+            if (null == targetSyncVersion) {
+
+                log.error(String.format("Sync version returned from target is null. Data sync avoided " +
+                        "for this cycle. Sync unit [%s] ", unitKey));
+                return -1;
+            }
+            int targetDBSyncVersion = targetSyncVersion;
+
+            ArrayList<String> updatingKeys = new ArrayList<>();
+
+            if (!context.dataInformationPsMap.containsKey(unitKey)) {
+                String query = "SELECT MAX(SYNC_ID) FROM (" +
+                        "SELECT SYNC_ID FROM " + sourceTable + "_SYNC WHERE SYNC_ID > ?" + partitionFilter
+                        + " limit " + batchSize + ") AS T;";
+                context.dataInformationPsMap.put(unitKey, context.sourceDBConnection.prepareStatement(query));
+            }
+            context.dataInformationPsMap.get(unitKey).setInt(1, targetDBSyncVersion);
+
+            try (ResultSet resultSet = context.dataInformationPsMap.get(unitKey).executeQuery()) {
+
+                if (resultSet.next()) {
+
+                    endingSyncId = resultSet.getInt("MAX(SYNC_ID)");
+                }
+            }
+            if (!context.dataExtractionPsMap.containsKey(unitKey)) {
+
+                String query = "SELECT * FROM " + sourceTable + " WHERE " + primaryCol + " IN ( SELECT * FROM (SELECT DISTINCT "
+                        + primaryCol + " FROM " + sourceTable + "_SYNC WHERE SYNC_ID > ? AND SYNC_ID <= ?"
+                        + partitionFilter + " )AS T);";
+
+                context.dataExtractionPsMap.put(unitKey, context.sourceDBConnection.prepareStatement(query));
+            }
+            context.dataExtractionPsMap.get(unitKey).setInt(1, targetDBSyncVersion);
+            context.dataExtractionPsMap.get(unitKey).setInt(2, endingSyncId);
+
+            boolean updateSuccess;
+            int syncedRows;
+
+            long t0Time = System.currentTimeMillis();
+
+            try (ResultSet resultSet = context.dataExtractionPsMap.get(unitKey).executeQuery()) {
+
+                if (log.isDebugEnabled()) {
+                    long t1Time = System.currentTimeMillis();
+                    log.info(String.format("Sync unit [%s], Elapsed time for data extraction [%s ms], Target sync version [%s]",
+                            unitKey, t1Time - t0Time, targetDBSyncVersion));
+                }
+
+                ResultSetMetaData resultSetMetaData = resultSet.getMetaData();
+                StringBuilder columnNames = new StringBuilder();
+                StringBuilder bindVariables = new StringBuilder();
+
+                for (int i = 1; i <= resultSetMetaData.getColumnCount(); i++) {
+
+                    if (i > 1) {
+                        columnNames.append(", ");
+                        bindVariables.append(", ");
+                    }
+
+                    columnNames.append(resultSetMetaData.getColumnName(i));
+                    bindVariables.append('?');
+                }
+
+                if (!context.dataUpdatePsMap.containsKey(table)) {
+
+                    String query = "REPLACE INTO " + targetTable + " ("
+                            + columnNames
+                            + ") VALUES ("
+                            + bindVariables
+                            + ");";
+
+                    context.dataUpdatePsMap.put(table, context.targetDBConnection.prepareStatement(query));
+                }
+                PreparedStatement dataUpdatePs = context.dataUpdatePsMap.get(table);
+
+                while (resultSet.next()) {
+                    updatingKeys.add(resultSet.getString(primaryCol));
+
+                    for (int i = 1; i <= resultSetMetaData.getColumnCount(); i++) {
+                        dataUpdatePs.setObject(i, resultSet.getObject(resultSetMetaData.getColumnName(i)));
+                    }
+                    dataUpdatePs.addBatch();
+                }
+
+                if (endingSyncId < targetDBSyncVersion) {
+
+                    dataUpdatePs.clearBatch();
+                    return 0;
+                } else if (0 == endingSyncId) {
+
+                    dataUpdatePs.clearBatch();
+                    if (log.isDebugEnabled())
+                        log.debug(String.format("No data to synchronize for sync unit [%s]", unitKey));
+                    return 0;
+                }
+
+                long t2Time = System.currentTimeMillis();
+
+                int[] updateResults = dataUpdatePs.executeBatch();
+
+                if (log.isDebugEnabled()) {
+                    long t3Time = System.currentTimeMillis();
+                    log.info(String.format("Sync unit [%s], Elapsed time for data update [%s ms], Target sync version [%s]",
+                            unitKey, t3Time - t2Time, targetDBSyncVersion));
+                }
+
+                updateSuccess = determineUpdateResults(updateResults, unitKey);
+
+                long endTime = System.currentTimeMillis();
+                log.info(String.format("Sync unit [%s], Elapsed time [%s ms], Target sync version [%s]",
+                        unitKey, endTime - startTime, targetDBSyncVersion));
+
+                if (log.isDebugEnabled())
+                    log.debug(String.format("Sync unit [%s], Sync'ed primary keys [%s]",
+                            unitKey, String.join(", ", updatingKeys)));
+
+                syncedRows = updateResults.length;
+            }
+
+            if (updateSuccess) {
+                // When leases are enabled the batch is only committed while this instance still owns the lease.
+                // The lease row stays locked until the commit, hence it cannot be taken over in between.
+                if (context.fenced && !isLeaseOwned(unit, context)) {
+                    log.warn(String.format("Lease was lost, discarding the synchronized batch, Sync unit [%s]",
+                            unitKey));
+                    return -1;
+                }
+
+                if (!context.targetVersionUpdatePsMap.containsKey(unitKey)) {
+
+                    String query = "UPDATE " + targetTable + "_SYNC_VERSION SET SYNC_ID = ? WHERE SYNC_ID = ?"
+                            + " AND PARTITION_ID = " + unit.getPartition() + ";";
+                    context.targetVersionUpdatePsMap.put(unitKey, context.targetDBConnection.prepareStatement(query));
+                }
+                PreparedStatement targetVersionUpdatePs = context.targetVersionUpdatePsMap.get(unitKey);
+                targetVersionUpdatePs.setInt(1, endingSyncId);
+                targetVersionUpdatePs.setInt(2, targetDBSyncVersion);
+
+                if (0 == targetVersionUpdatePs.executeUpdate()) {
+                    log.warn(String.format("Target DB sync version was changed by another instance, discarding " +
+                            "the synchronized batch, Sync unit [%s]", unitKey));
+                    return -1;
+                }
+
+                context.targetDBConnection.commit();
+                committed = true;
+
+            } else {
+                log.error(String.format("Update of the complete batch was not successful, avoiding target" +
+                        " DB sync version update, Sync unit [%s]", unitKey));
+                return -1;
+            }
+
+            return syncedRows;
+
+        } catch (SQLException e) {
+            if (e.getMessage().contains("Cannot add or update a child row: a foreign key constraint fails")) {
+                log.warn("Foreign key constraint error occurred. Will be fixed in next round : " + e.getMessage());
+            } else {
+                log.error(String.format("Error occurred while running SQL, Sync unit [%s]", unitKey), e);
+            }
+            return -1;
+        } finally {
+            try {
+                if (!committed) {
+                    context.targetDBConnection.rollback();
+                }
+                context.targetDBConnection.setAutoCommit(true);
+            } catch (SQLException e) {
+                log.error(String.format("Error occurred while ending the sync transaction, Sync unit [%s]", unitKey),
+                        e);
+            }
+        }
+    }
+
+    private static boolean isLeaseOwned(SyncUnit unit, SyncContext context) throws SQLException {
+
+        String unitKey = unit.getKey();
+        if (!context.leaseLockPsMap.containsKey(unitKey)) {
+
+            String query = "SELECT OWNER FROM " + targetDatabaseName + "." + SYNC_LEASE_TABLE + " WHERE TABLE_NAME = '"
+                    + unit.getTable() + "' AND PARTITION_ID = " + unit.getPartition() + " FOR UPDATE;";
+            context.leaseLockPsMap.put(unitKey, context.targetDBConnection.prepareStatement(query));
+        }
+
+        try (ResultSet resultSet = context.leaseLockPsMap.get(unitKey).executeQuery()) {
+            return resultSet.next() && instanceId.equals(resultSet.getString("OWNER"));
+        }
+    }
+
+    private static boolean determineUpdateResults(int[] updateResults, String table) {
+
+        ArrayList<String> failedUpdates = new ArrayList<>();
+        boolean updateSuccess = true;
+
+        for (int updateResult : updateResults) {
+            if (updateResult == Statement.EXECUTE_FAILED) {
+
+                updateSuccess = false;
                 failedUpdates.add(String.valueOf(updateResult));
             }
         }
@@ -715,4 +1957,223 @@ public class Runner {
 
         return dbConnection;
     }
+
+    /**
+     * Unit of synchronization work. A table is synchronized as one or more partitions, where rows are assigned to a
+     * partition by the hash of the primary key. Each partition has its own sync version and lease.
+     */
+    private static class SyncUnit {
+
+        private final String table;
+        private final int partition;
+        private final int partitionCount;
+
+        SyncUnit(String table, int partition, int partitionCount) {
+
+            this.table = table;
+            this.partition = partition;
+            this.partitionCount = partitionCount;
+        }
+
+        static String getKey(String table, int partition) {
+
+            return table + "#" + partition;
+        }
+
+        String getKey() {
+
+            return getKey(table, partition);
+        }
+
+        String getTable() {
+
+            return table;
+        }
+
+        int getPartition() {
+
+            return partition;
+        }
+
+        String getPartitionFilter(String primaryCol) {
+
+            if (1 == partitionCount) {
+                return "";
+            }
+            return " AND MOD(CRC32(" + primaryCol + "), " + partitionCount + ") = " + partition;
+        }
+    }
+
+    /**
+     * Metadata of a database table read from information_schema. Columns are kept in ordinal order.
+     */
+    private static class TableMetadata {
+
+        private final String name;
+        private final LinkedHashMap<String, String> columnTypes = new LinkedHashMap<>();
+        private final Set<String> referencedTables = new HashSet<>();
+        private final Set<String> triggers = new HashSet<>();
+        private String primaryCol;
+
+        TableMetadata(String name) {
+
+            this.name = name;
+        }
+
+        void addColumn(String column, String columnType, boolean primaryKey) {
+
+            columnTypes.put(column, columnType);
+            if (primaryKey && null == primaryCol) {
+                primaryCol = column;
+            }
+        }
+
+        void addReferencedTable(String table) {
+
+            referencedTables.add(table);
+        }
+
+        void addTrigger(String trigger) {
+
+            triggers.add(trigger.toUpperCase(Locale.ROOT));
+        }
+
+        String getName() {
+
+            return name;
+        }
+
+        String getPrimaryCol() {
+
+            return primaryCol;
+        }
+
+        Set<String> getColumns() {
+
+            return columnTypes.keySet();
+        }
+
+        String getColumnType(String column) {
+
+            return columnTypes.get(column);
+        }
+
+        Set<String> getReferencedTables() {
+
+            return referencedTables;
+        }
+
+        boolean hasTrigger(String trigger) {
+
+            return triggers.contains(trigger.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Database connections and prepared statements used by a single synchronizing thread. Prepared statements are
+     * cached by sync unit key, except the data update statement which is cached by table name.
+     */
+    private static class SyncContext {
+
+        private final Connection sourceDBConnection;
+        private final Connection targetDBConnection;
+        private final boolean fenced;
+        private final ConcurrentHashMap<String, PreparedStatement> targetSyncVersionPsMap = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, PreparedStatement> dataInformationPsMap = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, PreparedStatement> dataExtractionPsMap = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, PreparedStatement> dataUpdatePsMap = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, PreparedStatement> targetVersionUpdatePsMap = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, PreparedStatement> leaseLockPsMap = new ConcurrentHashMap<>();
+
+        /**
+         * @param fenced whether a batch is only committed while this instance owns the lease of the sync unit
+         */
+        SyncContext(Connection sourceDBConnection, Connection targetDBConnection, boolean fenced) {
+
+            this.sourceDBConnection = sourceDBConnection;
+            this.targetDBConnection = targetDBConnection;
+            this.fenced = fenced;
+        }
+    }
+
+    /**
+     * Drain progress of a sync unit. Remaining events are estimated from the distance between the target sync version
+     * and the high-water mark, so that progress is tracked without counting the sync log after every batch.
+     */
+    private static class DrainState {
+
+        private final int startVersion;
+        private final int highWaterMark;
+        private final long initialEvents;
+        private volatile int syncVersion;
+        private volatile boolean failed;
+        private int failures;
+        private int deferrals;
+
+        DrainState(int startVersion, int highWaterMark, long initialEvents) {
+
+            this.startVersion = startVersion;
+            this.highWaterMark = highWaterMark;
+            this.initialEvents = initialEvents;
+            this.syncVersion = startVersion;
+        }
+
+        int getHighWaterMark() {
+
+            return highWaterMark;
+        }
+
+        long getInitialEvents() {
+
+            return initialEvents;
+        }
+
+        /**
+         * Failures and deferrals are only updated by the worker currently holding the unit.
+         *
+         * @return number of failures of the unit, including this one
+         */
+        int countFailure() {
+
+            return ++failures;
+        }
+
+        int getFailures() {
+
+            return failures;
+        }
+
+        /**
+         * @return number of deferred failures of the unit, including this one
+         */
+        int deferFailure() {
+
+            return ++deferrals;
+        }
+
+        boolean isFailed() {
+
+            return failed;
+        }
+
+        void setFailed() {
+
+            failed = true;
+        }
+
+        void setSyncVersion(int syncVersion) {
+
+            this.syncVersion = syncVersion;
+        }
+
+        long getRemainingEvents() {
+
+            int currentVersion = syncVersion;
+            if (0 == initialEvents || currentVersion >= highWaterMark) {
+                return 0;
+            }
+            long remaining = initialEvents * (highWaterMark - currentVersion) / (highWaterMark - startVersion);
+            return Math.max(1, remaining);
+        }
+    }
 }